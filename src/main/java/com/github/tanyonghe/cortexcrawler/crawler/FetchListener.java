@@ -0,0 +1,8 @@
+package com.github.tanyonghe.cortexcrawler.crawler;
+
+@FunctionalInterface
+public interface FetchListener {
+    // Called once per crawler attempt. Latency spans the whole HttpClient execute() call: the request,
+    // body download, any redirect hops the client follows and any Retry-After wait before its own retry.
+    void onFetch(String url, long latencyNanos, boolean success);
+}
@@ -17,6 +17,7 @@ import java.net.URL;
 import java.net.MalformedURLException;
 import java.util.regex.Pattern;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WebCrawler {
     private final PriorityBlockingQueue<CrawlTask> queue = new PriorityBlockingQueue<>();
@@ -27,6 +28,9 @@ public class WebCrawler {
     private final Map<String, Integer> domainCrawlDelays = new ConcurrentHashMap<>();
     private final Set<String> allowedDomains;
     private final Set<String> blockedDomains;
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private volatile ExecutorService executor;
+    private volatile FetchListener fetchListener;
     private static final Set<String> ALLOWED_CONTENT_TYPES = Set.of(
         "text/html",
         "application/xhtml+xml"
@@ -40,6 +44,8 @@ public class WebCrawler {
     );
     private static final int MAX_RETRIES = 3;
     private static final int DEFAULT_CRAWL_DELAY = 1000; // 1 second default delay
+    // Above a page fetch's 10s connect + 30s response timeouts; robots.txt fetches set no timeout and may outlast it
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 45;
 
     public WebCrawler(int maxThreads, double requestsPerSecond) {
         this(maxThreads, requestsPerSecond, new HashSet<>(), new HashSet<>());
@@ -58,6 +64,7 @@ public class WebCrawler {
         }
         String normalizedUrl = normalizeUrl(url);
         if (normalizedUrl != null && isValidUrl(normalizedUrl) && visited.add(normalizedUrl)) {
+            pendingTasks.incrementAndGet();
             queue.add(new CrawlTask(normalizedUrl, priority));
         }
     }
@@ -138,7 +145,8 @@ public class WebCrawler {
         try {
             URL parsedUrl = new URL(url);
             String host = parsedUrl.getHost();
-            String robotsTxtUrl = parsedUrl.getProtocol() + "://" + host + "/robots.txt";
+            String port = parsedUrl.getPort() != -1 ? ":" + parsedUrl.getPort() : "";
+            String robotsTxtUrl = parsedUrl.getProtocol() + "://" + host + port + "/robots.txt";
 
             if (!domainCrawlDelays.containsKey(host)) {
                 try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
@@ -192,25 +200,52 @@ public class WebCrawler {
             }
             
             domainLastCrawlTime.put(host, System.currentTimeMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             // If anything goes wrong, just continue
         }
     }
 
     public void start() {
-        ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
+        executor = Executors.newFixedThreadPool(maxThreads);
         for (int i = 0; i < maxThreads; i++) {
             executor.submit(this::worker);
         }
         executor.shutdown();
     }
 
+    // Interrupts the workers and waits for in-flight fetches to finish, up to SHUTDOWN_TIMEOUT_SECONDS
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // True once every queued URL has been processed and no new links are pending
+    public boolean isIdle() {
+        return pendingTasks.get() == 0;
+    }
+
+    public void setFetchListener(FetchListener fetchListener) {
+        this.fetchListener = fetchListener;
+    }
+
     private void worker() {
         while (true) {
             try {
                 CrawlTask task = queue.take();
-                rateLimiter.acquire();
-                process(task);
+                try {
+                    rateLimiter.acquire();
+                    process(task);
+                } finally {
+                    pendingTasks.decrementAndGet();
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
@@ -234,23 +269,31 @@ public class WebCrawler {
                     .build();
                 request.setConfig(requestConfig);
 
-                String html = httpClient.execute(request, response -> {
-                    int statusCode = response.getCode();
-                    if (statusCode == 301 || statusCode == 302) {
-                        String location = response.getHeader("Location").getValue();
-                        addUrl(location, task.getPriority());
-                        throw new IOException("Redirecting to: " + location);
-                    }
-                    if (statusCode >= 400) {
-                        throw new IOException("HTTP " + statusCode);
-                    }
-                    // Check content type
-                    String contentType = response.getHeader("Content-Type").getValue();
-                    if (!ALLOWED_CONTENT_TYPES.stream().anyMatch(contentType::contains)) {
-                        throw new IOException("Unsupported content type: " + contentType);
-                    }
-                    return EntityUtils.toString(response.getEntity());
-                });
+                long fetchStart = System.nanoTime();
+                String html;
+                try {
+                    html = httpClient.execute(request, response -> {
+                        int statusCode = response.getCode();
+                        if (statusCode == 301 || statusCode == 302) {
+                            String location = response.getHeader("Location").getValue();
+                            addUrl(location, task.getPriority());
+                            throw new IOException("Redirecting to: " + location);
+                        }
+                        if (statusCode >= 400) {
+                            throw new IOException("HTTP " + statusCode);
+                        }
+                        // Check content type
+                        String contentType = response.getHeader("Content-Type").getValue();
+                        if (!ALLOWED_CONTENT_TYPES.stream().anyMatch(contentType::contains)) {
+                            throw new IOException("Unsupported content type: " + contentType);
+                        }
+                        return EntityUtils.toString(response.getEntity());
+                    });
+                } catch (IOException e) {
+                    notifyFetch(task.getUrl(), fetchStart, false);
+                    throw e;
+                }
+                notifyFetch(task.getUrl(), fetchStart, true);
 
                 Document doc = Jsoup.parse(html, task.getUrl());
                 Elements links = doc.select("a[href]");
@@ -280,6 +323,13 @@ public class WebCrawler {
         }
     }
 
+    private void notifyFetch(String url, long fetchStart, boolean success) {
+        FetchListener listener = fetchListener;
+        if (listener != null) {
+            listener.onFetch(url, System.nanoTime() - fetchStart, success);
+        }
+    }
+
     // For testing purposes
     public boolean isVisited(String url) {
         return visited.contains(url);
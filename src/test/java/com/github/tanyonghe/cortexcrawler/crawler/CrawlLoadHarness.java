@@ -0,0 +1,126 @@
+package com.github.tanyonghe.cortexcrawler.crawler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link WebCrawler} against a {@link SyntheticWebServer} until the crawl goes idle
+ * (or times out) and reports throughput, fetch latency, heap and politeness figures.
+ */
+class CrawlLoadHarness {
+
+    private static final int SEED_PRIORITY = 1_000_000;
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    record Report(
+        double elapsedSeconds,
+        long fetchesSucceeded,
+        long fetchesFailed,
+        double pagesPerSecond,
+        double fetchesPerSecond,
+        double p50FetchMillis,
+        double p99FetchMillis,
+        long heapHighWaterBytes,
+        long politenessViolations,
+        long redirectHopViolations,
+        long serverRequests,
+        long errorsServed,
+        long throttledServed,
+        long redirectsServed,
+        int distinctPagesServed,
+        int totalPages,
+        boolean timedOut
+    ) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                "elapsed=%.2fs pages/sec=%.1f fetches/sec=%.1f fetches ok=%d failed=%d p50=%.1fms p99=%.1fms "
+                    + "heapHighWater=%.1fMiB politenessViolations=%d redirectHopViolations=%d serverRequests=%d "
+                    + "5xx=%d 429=%d redirects=%d pages=%d/%d%s",
+                elapsedSeconds, pagesPerSecond, fetchesPerSecond, fetchesSucceeded, fetchesFailed, p50FetchMillis, p99FetchMillis,
+                heapHighWaterBytes / (1024.0 * 1024.0), politenessViolations, redirectHopViolations, serverRequests,
+                errorsServed, throttledServed, redirectsServed, distinctPagesServed, totalPages,
+                timedOut ? " TIMED OUT" : "");
+        }
+    }
+
+    static Report run(SyntheticWebServer.Config config, int threads, double requestsPerSecond, Duration timeout)
+            throws Exception {
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        try (SyntheticWebServer server = new SyntheticWebServer(config)) {
+            WebCrawler crawler = new WebCrawler(threads, requestsPerSecond);
+            crawler.setFetchListener((url, latencyNanos, success) -> {
+                latencies.add(latencyNanos);
+                (success ? succeeded : failed).incrementAndGet();
+            });
+            for (String seed : server.seedUrls()) {
+                crawler.addUrl(seed, SEED_PRIORITY);
+            }
+
+            List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+            System.gc();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+            long start = System.nanoTime();
+            long deadline = start + timeout.toNanos();
+            boolean timedOut = false;
+            double elapsedSeconds;
+            crawler.start();
+            try {
+                while (!crawler.isIdle()) {
+                    if (System.nanoTime() > deadline) {
+                        timedOut = true;
+                        break;
+                    }
+                    Thread.sleep(POLL_INTERVAL_MILLIS);
+                }
+                elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            } finally {
+                crawler.stop();
+            }
+
+            // Sum of per-pool peaks, so an upper bound on simultaneous heap occupancy
+            long heapHighWater = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            return new Report(
+                elapsedSeconds,
+                succeeded.get(),
+                failed.get(),
+                // Distinct pages, so redirect entries that re-fetch an already crawled page don't inflate it
+                server.distinctPagesServed() / elapsedSeconds,
+                succeeded.get() / elapsedSeconds,
+                percentileMillis(sorted, 0.50),
+                percentileMillis(sorted, 0.99),
+                heapHighWater,
+                server.politenessViolations(),
+                server.redirectHopViolations(),
+                server.requests(),
+                server.errorsServed(),
+                server.throttledServed(),
+                server.redirectsServed(),
+                server.distinctPagesServed(),
+                server.totalPages(),
+                timedOut);
+        }
+    }
+
+    static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1e6;
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.tanyonghe.cortexcrawler.crawler;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlLoadHarnessTest {
+
+    @Test
+    void testSmallSiteIsFullyCrawled() throws Exception {
+        // Untagged tests stay on 127.0.0.1, the only loopback address macOS and BSD have by default
+        SyntheticWebServer.Config config = new SyntheticWebServer.Config()
+            .hosts(1)
+            .pagesPerHost(40)
+            .fanOut(3)
+            .latency(1, 0.0)
+            .crawlDelayMillis(0)
+            .errorRate(0.0)
+            .throttleRate(0.0)
+            .redirects(0.2, 2);
+
+        CrawlLoadHarness.Report report = CrawlLoadHarness.run(config, 4, 1000.0, Duration.ofSeconds(30));
+
+        assertFalse(report.timedOut());
+        assertEquals(report.totalPages(), report.distinctPagesServed());
+        assertEquals(0, report.fetchesFailed());
+        assertTrue(report.fetchesSucceeded() >= report.totalPages());
+        assertTrue(report.pagesPerSecond() > 0);
+    }
+
+    @Test
+    void testSingleThreadRespectsCrawlDelay() throws Exception {
+        SyntheticWebServer.Config config = new SyntheticWebServer.Config()
+            .hosts(1)
+            .pagesPerHost(10)
+            .fanOut(3)
+            .latency(0, 0.0)
+            .crawlDelayMillis(200)
+            .errorRate(0.0)
+            .throttleRate(0.0)
+            .redirects(0.0, 0);
+
+        CrawlLoadHarness.Report report = CrawlLoadHarness.run(config, 1, 1000.0, Duration.ofSeconds(30));
+
+        assertFalse(report.timedOut());
+        assertEquals(10, report.distinctPagesServed());
+        assertEquals(0, report.politenessViolations());
+    }
+
+    @Test
+    void testPercentileMillis() {
+        long[] sorted = new long[100];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = (i + 1) * 1_000_000L;
+        }
+        assertEquals(50.0, CrawlLoadHarness.percentileMillis(sorted, 0.50));
+        assertEquals(99.0, CrawlLoadHarness.percentileMillis(sorted, 0.99));
+        assertEquals(0.0, CrawlLoadHarness.percentileMillis(new long[0], 0.50));
+    }
+
+    @Test
+    @Tag("load")
+    void testReferenceWorkload() throws Exception {
+        int threads = Integer.getInteger("loadtest.threads", 16);
+        double requestsPerSecond = Double.parseDouble(System.getProperty("loadtest.requestsPerSecond", "500"));
+        long timeoutSeconds = Long.getLong("loadtest.timeoutSeconds", 600);
+
+        CrawlLoadHarness.Report report = CrawlLoadHarness.run(
+            SyntheticWebServer.Config.fromSystemProperties(), threads, requestsPerSecond,
+            Duration.ofSeconds(timeoutSeconds));
+
+        System.out.println("Reference workload: " + report);
+        assertFalse(report.timedOut(), report.toString());
+    }
+}
@@ -0,0 +1,309 @@
+package com.github.tanyonghe.cortexcrawler.crawler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves a generated site graph from loopback addresses so the crawler can be
+ * load-tested without touching the internet. Each synthetic host binds to its
+ * own 127.0.0.x address, which keeps the crawler's per-host politeness state apart.
+ */
+class SyntheticWebServer implements AutoCloseable {
+
+    static class Config {
+        int hosts = 8;
+        int pagesPerHost = 250;
+        int fanOut = 8;
+        double crossHostLinkRate = 0.1;
+        int minPageBytes = 2 * 1024;
+        int maxPageBytes = 32 * 1024;
+        double latencyMedianMillis = 20;
+        double latencySigma = 0.6;
+        int crawlDelayMillis = 100;
+        // The crawler stamps its per-host clock before building the request and connecting, so the
+        // arrivals it paces can shift by a few ms. A crawl delay at or below this tolerance
+        // disables violation counting, since the minimum gap becomes zero or negative.
+        int politenessToleranceMillis = 25;
+        double errorRate = 0.01;
+        // Off by default: HttpClient sleeps out Retry-After inside execute(), which would pin p99 at ~1s
+        double throttleRate = 0.0;
+        double redirectRate = 0.05;
+        int redirectChainLength = 2;
+        long seed = 42;
+
+        Config hosts(int hosts) { this.hosts = hosts; return this; }
+
+        Config pagesPerHost(int pagesPerHost) { this.pagesPerHost = pagesPerHost; return this; }
+
+        Config fanOut(int fanOut) { this.fanOut = fanOut; return this; }
+
+        Config crossHostLinkRate(double rate) { this.crossHostLinkRate = rate; return this; }
+
+        Config pageBytes(int min, int max) { this.minPageBytes = min; this.maxPageBytes = max; return this; }
+
+        Config latency(double medianMillis, double sigma) {
+            this.latencyMedianMillis = medianMillis;
+            this.latencySigma = sigma;
+            return this;
+        }
+
+        Config crawlDelayMillis(int crawlDelayMillis) { this.crawlDelayMillis = crawlDelayMillis; return this; }
+
+        Config politenessToleranceMillis(int toleranceMillis) {
+            this.politenessToleranceMillis = toleranceMillis;
+            return this;
+        }
+
+        Config errorRate(double rate) { this.errorRate = rate; return this; }
+
+        Config throttleRate(double rate) { this.throttleRate = rate; return this; }
+
+        Config redirects(double rate, int chainLength) {
+            this.redirectRate = rate;
+            this.redirectChainLength = chainLength;
+            return this;
+        }
+
+        Config seed(long seed) { this.seed = seed; return this; }
+
+        // Defaults above form the reference workload; -Dloadtest.<field>=... overrides any of them.
+        // See README "Load Testing" for how redirects, 429s and seed affect the figures.
+        static Config fromSystemProperties() {
+            Config config = new Config();
+            config.hosts = Integer.getInteger("loadtest.hosts", config.hosts);
+            config.pagesPerHost = Integer.getInteger("loadtest.pagesPerHost", config.pagesPerHost);
+            config.fanOut = Integer.getInteger("loadtest.fanOut", config.fanOut);
+            config.crossHostLinkRate = doubleProperty("loadtest.crossHostLinkRate", config.crossHostLinkRate);
+            config.minPageBytes = Integer.getInteger("loadtest.minPageBytes", config.minPageBytes);
+            config.maxPageBytes = Integer.getInteger("loadtest.maxPageBytes", config.maxPageBytes);
+            config.latencyMedianMillis = doubleProperty("loadtest.latencyMedianMillis", config.latencyMedianMillis);
+            config.latencySigma = doubleProperty("loadtest.latencySigma", config.latencySigma);
+            config.crawlDelayMillis = Integer.getInteger("loadtest.crawlDelayMillis", config.crawlDelayMillis);
+            config.politenessToleranceMillis = Integer.getInteger("loadtest.politenessToleranceMillis",
+                config.politenessToleranceMillis);
+            config.errorRate = doubleProperty("loadtest.errorRate", config.errorRate);
+            config.throttleRate = doubleProperty("loadtest.throttleRate", config.throttleRate);
+            config.redirectRate = doubleProperty("loadtest.redirectRate", config.redirectRate);
+            config.redirectChainLength = Integer.getInteger("loadtest.redirectChainLength", config.redirectChainLength);
+            config.seed = Long.getLong("loadtest.seed", config.seed);
+            return config;
+        }
+
+        private static double doubleProperty(String key, double defaultValue) {
+            String value = System.getProperty(key);
+            return value == null ? defaultValue : Double.parseDouble(value);
+        }
+    }
+
+    private static final String HOP_QUERY = "hop";
+    private static final String FILLER = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ";
+
+    private final Config config;
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final List<String> baseUrls = new ArrayList<>();
+    private final ExecutorService handlerPool = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "synthetic-web-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<String> pagesServed = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errorsServed = new AtomicLong();
+    private final AtomicLong throttledServed = new AtomicLong();
+    private final AtomicLong redirectsServed = new AtomicLong();
+    private final AtomicLong politenessViolations = new AtomicLong();
+    private final AtomicLong redirectHopViolations = new AtomicLong();
+
+    SyntheticWebServer(Config config) throws IOException {
+        if (config.hosts < 1 || config.hosts > 254) {
+            throw new IllegalArgumentException("hosts must be between 1 and 254: " + config.hosts);
+        }
+        this.config = config;
+        try {
+            for (int i = 0; i < config.hosts; i++) {
+                InetAddress address = InetAddress.getByAddress(new byte[] {127, 0, 0, (byte) (i + 1)});
+                HttpServer server = HttpServer.create(new InetSocketAddress(address, 0), 128);
+                int hostIndex = i;
+                AtomicLong lastPacedArrival = new AtomicLong();
+                AtomicLong lastArrival = new AtomicLong();
+                server.createContext("/", exchange -> handle(exchange, hostIndex, lastPacedArrival, lastArrival));
+                server.setExecutor(handlerPool);
+                server.start();
+                servers.add(server);
+                baseUrls.add("http://" + address.getHostAddress() + ":" + server.getAddress().getPort());
+            }
+        } catch (IOException e) {
+            close();
+            throw new IOException("Could not bind synthetic hosts on 127.0.0.x (needs the full loopback range)", e);
+        }
+    }
+
+    List<String> seedUrls() {
+        List<String> seeds = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            seeds.add(baseUrl + "/p/0");
+        }
+        return seeds;
+    }
+
+    int totalPages() { return config.hosts * config.pagesPerHost; }
+
+    int distinctPagesServed() { return pagesServed.size(); }
+
+    long requests() { return requests.get(); }
+
+    long errorsServed() { return errorsServed.get(); }
+
+    long throttledServed() { return throttledServed.get(); }
+
+    long redirectsServed() { return redirectsServed.get(); }
+
+    long politenessViolations() { return politenessViolations.get(); }
+
+    long redirectHopViolations() { return redirectHopViolations.get(); }
+
+    private void handle(HttpExchange exchange, int hostIndex, AtomicLong lastPacedArrival, AtomicLong lastArrival)
+            throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/robots.txt")) {
+                String robots = String.format(Locale.ROOT, "User-agent: *\nCrawl-delay: %.3f\n",
+                    config.crawlDelayMillis / 1000.0);
+                send(exchange, 200, "text/plain", robots.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            // robots.txt is exempt. Redirect hops carry HOP_QUERY and are sent by HttpClient without
+            // pacing, so they are checked against any earlier arrival and counted separately; the
+            // headline count compares only the requests the crawler itself paces.
+            long now = System.nanoTime();
+            long minimumGapNanos = (config.crawlDelayMillis - config.politenessToleranceMillis) * 1_000_000L;
+            long previous = lastArrival.getAndSet(now);
+            if (HOP_QUERY.equals(exchange.getRequestURI().getQuery())) {
+                if (previous != 0 && now - previous < minimumGapNanos) {
+                    redirectHopViolations.incrementAndGet();
+                }
+            } else {
+                long previousPaced = lastPacedArrival.getAndSet(now);
+                if (previousPaced != 0 && now - previousPaced < minimumGapNanos) {
+                    politenessViolations.incrementAndGet();
+                }
+            }
+
+            sleepQuietly(sampleLatencyMillis());
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < config.throttleRate) {
+                throttledServed.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, "text/plain", "Too Many Requests".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (random.nextDouble() < config.errorRate) {
+                errorsServed.incrementAndGet();
+                send(exchange, 500, "text/plain", "Internal Server Error".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            String[] segments = path.split("/");
+            try {
+                if (segments.length == 3 && segments[1].equals("p")) {
+                    int page = Integer.parseInt(segments[2]);
+                    if (page >= 0 && page < config.pagesPerHost) {
+                        pagesServed.add(hostIndex + "/" + page);
+                        send(exchange, 200, "text/html; charset=utf-8", renderPage(hostIndex, page));
+                        return;
+                    }
+                } else if (segments.length == 4 && segments[1].equals("r")) {
+                    int hops = Integer.parseInt(segments[2]);
+                    String next = hops <= 1 ? "/p/" + segments[3] : "/r/" + (hops - 1) + "/" + segments[3];
+                    redirectsServed.incrementAndGet();
+                    exchange.getResponseHeaders().set("Location", baseUrls.get(hostIndex) + next + "?" + HOP_QUERY);
+                    send(exchange, 302, "text/plain", "Found".getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through to 404
+            }
+            send(exchange, 404, "text/plain", "Not Found".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Links follow a heap layout (page i links to pages i*fanOut+1..i*fanOut+fanOut on the same host)
+    // so every page is reachable from page 0; slots past the end of the host point at random pages,
+    // and only those may cross to another host.
+    private byte[] renderPage(int hostIndex, int page) {
+        Random random = new Random(config.seed * 31 + (long) hostIndex * config.pagesPerHost + page);
+        StringBuilder html = new StringBuilder("<html><head><title>Page ")
+            .append(hostIndex).append('/').append(page).append("</title></head><body>\n");
+        for (int k = 1; k <= config.fanOut; k++) {
+            long child = (long) page * config.fanOut + k;
+            boolean heapChild = child < config.pagesPerHost;
+            int targetPage = heapChild ? (int) child : random.nextInt(config.pagesPerHost);
+            int targetHost = !heapChild && random.nextDouble() < config.crossHostLinkRate
+                ? random.nextInt(config.hosts) : hostIndex;
+            String target = random.nextDouble() < config.redirectRate && config.redirectChainLength > 0
+                ? "/r/" + config.redirectChainLength + "/" + targetPage
+                : "/p/" + targetPage;
+            html.append("<a href=\"").append(baseUrls.get(targetHost)).append(target).append("\">link</a>\n");
+        }
+        int size = config.minPageBytes + random.nextInt(Math.max(1, config.maxPageBytes - config.minPageBytes + 1));
+        html.append("<p>");
+        while (html.length() < size - 20) {
+            html.append(FILLER);
+        }
+        html.append("</p></body></html>");
+        return html.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private long sampleLatencyMillis() {
+        if (config.latencyMedianMillis <= 0) {
+            return 0;
+        }
+        double gaussian = ThreadLocalRandom.current().nextGaussian();
+        return Math.round(config.latencyMedianMillis * Math.exp(config.latencySigma * gaussian));
+    }
+
+    private static void sleepQuietly(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Bodies are never empty: the JDK server resets kept-alive connections after a -1 length response
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+        handlerPool.shutdownNow();
+    }
+}